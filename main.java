@@ -2,7 +2,8 @@
 package application;
 
 import javafx.application.Application;
-import javafx.beans.property.SimpleDoubleProperty; // Import this
+import javafx.application.Platform;
+import javafx.beans.property.ReadOnlyObjectWrapper;
 import javafx.beans.property.SimpleIntegerProperty; // Import this
 import javafx.beans.property.SimpleObjectProperty;
 import javafx.beans.property.SimpleStringProperty;  // Import this
@@ -18,28 +19,80 @@ import javafx.scene.layout.HBox;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
 
-import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+import java.util.function.ToLongFunction;
 
 public class Main extends Application {
 
+    private static final DateTimeFormatter ORDER_TIME_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+    private static final String ANY_FILTER = "Any";
+    private static final DateTimeFormatter BOOKING_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    private static final boolean EXIT_WHEN_READY = Boolean.getBoolean("restaurant.startup.exitWhenReady");
+    // FX-thread stall measurement (see FxStallBenchmark): database calls made on the FX thread as they
+    // used to be, and a number of full reloads of every tab to run once interactive, then exit
+    private static final boolean SYNC_LOAD = Boolean.getBoolean("restaurant.ui.syncLoad");
+    private static final int STALL_RELOADS = Integer.getInteger("restaurant.ui.stallReloads", 0);
+    private static final Instant LOADED = Instant.now(); // Stands in for the JVM's start if the OS does not report it
+
+    private Stage primaryStage;
     private DatabaseManager dbManager;
+    private AsyncDatabaseManager asyncDb; // All database calls go through here, off the FX thread
+    private CompletableFuture<Void> pendingReload; // Latest loadAllData(), cancelled if a newer one starts
+    private final FxStallProbe stallProbe = new FxStallProbe();
+    private OrderEventBus.Subscription eventSubscription; // Changes made by other terminals
+    private boolean eventSyncQueued; // A sync for received events is already waiting on the FX thread
+
+    // Startup: tabs not yet selected, with what builds them, and the data sets the built tabs show
+    private TabPane tabPane;
+    private final Map<Tab, Runnable> unbuiltTabs = new HashMap<>();
+    private boolean menuWanted;
+    private boolean ordersWanted;
+    private boolean bookingsWanted;
+    private long firstFrameMillis;
 
     // ObservableLists for TableViews
     private ObservableList<MenuItem> menuItems;
     private ObservableList<Order> orders;
     private ObservableList<TableBooking> tableBookings;
+    private OrderPager orderPager; // Holds only a window of order pages in the orders list
+
+    // Incremental sync state: rows by ID for targeted updates, and each table's last-seen change time
+    private final Map<Integer, MenuItem> menuItemsById = new HashMap<>();
+    private final Map<Integer, TableBooking> bookingsById = new HashMap<>();
+    private Timestamp menuWatermark;
+    private Timestamp bookingWatermark;
 
     // UI elements for Menu Management
     private TextField menuItemNameField;
     private TextField menuItemPriceField;
+    private TextField menuItemStockField;
     private TableView<MenuItem> menuTable;
 
     // UI elements for Order Management (simplified for now)
     private TableView<Order> orderTable;
     private TextField orderTableNumberField;
+    private ComboBox<String> orderStatusFilter; // Open-order filters, answered by the order index
+    private ComboBox<String> orderPaymentFilter;
+    private TextField orderTableFilter;
     private TableView<OrderItem> currentOrderItemsTable; // For adding items to a new order
     private ObservableList<OrderItem> currentOrderItems; // List for items in current order being placed
 
@@ -47,6 +100,8 @@ public class Main extends Application {
     private TextField bookingTableNumberField;
     private TextField bookingCapacityField;
     private TextField bookingCustomerNameField;
+    private TextField bookingStartField;
+    private TextField bookingDurationField;
     private TableView<TableBooking> bookingTable;
 
     public static void main(String[] args) {
@@ -55,70 +110,352 @@ public class Main extends Application {
 
     @Override
     public void start(Stage primaryStage) {
-        dbManager = new DatabaseManager();
+        // The window comes up at once with empty tabs; the database is reached in the background (see openDatabase)
+        this.primaryStage = primaryStage;
+        primaryStage.setTitle("Restaurant Management System - connecting...");
+        stallProbe.start();
+
+        // Initialize ObservableLists
+        menuItems = FXCollections.observableArrayList();
+        orders = FXCollections.observableArrayList();
+        tableBookings = FXCollections.observableArrayList();
+        currentOrderItems = FXCollections.observableArrayList(); // For new order creation
+
+        // Each tab is built, and its data loaded, the first time it is selected
+        tabPane = new TabPane();
+        Tab menuTab = lazyTab("Menu Management");
+        unbuiltTabs.put(menuTab, () -> {
+            menuTab.setContent(createMenuTab());
+            menuWanted = true;
+        });
+        Tab orderTab = lazyTab("Order Management");
+        unbuiltTabs.put(orderTab, () -> {
+            orderTab.setContent(createOrderTab());
+            ordersWanted = true;
+            menuWanted = true; // New orders are picked from the menu
+        });
+        Tab bookingTab = lazyTab("Table Booking");
+        unbuiltTabs.put(bookingTab, () -> {
+            bookingTab.setContent(createBookingTab());
+            bookingsWanted = true;
+        });
+        tabPane.getTabs().addAll(menuTab, orderTab, bookingTab);
+        tabPane.getSelectionModel().selectedItemProperty().addListener((observable, previous, selected) -> buildTab(selected));
+
+        Scene scene = new Scene(tabPane, 1200, 700); // Adjust size as needed
+        scene.addPostLayoutPulseListener(new Runnable() {
+            @Override
+            public void run() {
+                firstFrameMillis = millisSinceLaunch();
+                scene.removePostLayoutPulseListener(this);
+            }
+        });
+        primaryStage.setScene(scene);
+        primaryStage.show();
 
-        // Only proceed if database connection was successful
-        if (dbManager.getConnection() == null) {
+        Thread opener = new Thread(() -> {
+            DatabaseManager manager = new DatabaseManager(); // Migrates the schema and fills its caches in parallel
+            manager.addDefaultMenuItems(); // Add default menu items if table is empty
+            Platform.runLater(() -> openDatabase(manager));
+        }, "startup");
+        opener.setDaemon(true);
+        opener.start();
+    }
+
+    private static Tab lazyTab(String title) {
+        Tab tab = new Tab(title);
+        tab.setClosable(false);
+        VBox placeholder = new VBox(new ProgressIndicator());
+        placeholder.setAlignment(Pos.CENTER);
+        tab.setContent(placeholder);
+        return tab;
+    }
+
+    // Builds the tab's content and loads what it shows, unless it is built already or there is no database yet
+    private void buildTab(Tab tab) {
+        if (dbManager == null) return;
+        Runnable build = unbuiltTabs.remove(tab);
+        if (build != null) {
+            build.run();
+            syncChanges(); // Data sets the tab newly wants have no watermark yet, so they are loaded in full
+        }
+    }
+
+    // On the FX thread once the DatabaseManager is constructed, connected or not
+    private void openDatabase(DatabaseManager manager) {
+        dbManager = manager;
+        // Only proceed if the database was reached, or this terminal can work offline until it is
+        if (!dbManager.isConnected() && !dbManager.isOffline()) {
             showAlert(Alert.AlertType.ERROR, "Initialization Error", "Database Connection Failed",
                       "The application could not connect to the database. Please check your database server and credentials.");
             primaryStage.close(); // Close the application if DB connection fails
             return;
         }
+        if (dbManager.isOffline()) {
+            showAlert(Alert.AlertType.WARNING, "Offline", "Working Offline",
+                      "The database could not be reached. Orders, status changes and bookings are saved on this terminal "
+                    + "and sent to the database when it is back.");
+        }
+        watchConnectivity();
+        asyncDb = SYNC_LOAD ? AsyncDatabaseManager.onCallingThread(dbManager) : new AsyncDatabaseManager(dbManager, Platform::runLater);
+        orderPager = new OrderPager(asyncDb, orders);
+        subscribeToOrderEvents();
+        updateTitle();
+
+        // Load data from DB initially: what the selected tab shows
+        buildTab(tabPane.getSelectionModel().getSelectedItem());
+        if (pendingReload != null) {
+            pendingReload.whenComplete((result, error) -> Platform.runLater(this::reportStartup));
+        }
+    }
 
-        dbManager.addDefaultMenuItems(); // Add default menu items if table is empty
-
-        // Initialize ObservableLists
-        menuItems = FXCollections.observableArrayList();
-        orders = FXCollections.observableArrayList();
-        tableBookings = FXCollections.observableArrayList();
-        currentOrderItems = FXCollections.observableArrayList(); // For new order creation
+    // Interactive: the selected tab is built and filled. Measured from the launch of the JVM.
+    private void reportStartup() {
+        long interactiveMillis = millisSinceLaunch();
+        OperationMetrics metrics = dbManager.getMetrics();
+        long now = System.nanoTime();
+        metrics.record("startup.firstFrame", now - TimeUnit.MILLISECONDS.toNanos(firstFrameMillis), 0, false);
+        metrics.record("startup.interactive", now - TimeUnit.MILLISECONDS.toNanos(interactiveMillis), 0, false);
+        System.out.println("Startup: firstFrameMillis=" + firstFrameMillis + " interactiveMillis=" + interactiveMillis);
+        if (STALL_RELOADS > 0) {
+            for (Tab tab : new ArrayList<>(unbuiltTabs.keySet())) {
+                buildTab(tab);
+            }
+            stallProbe.reset(); // Only the reloads are counted
+            runStallReloads(STALL_RELOADS);
+        } else if (EXIT_WHEN_READY) {
+            Platform.exit(); // A startup benchmark or class-list training run; see StartupBenchmark
+        }
+    }
 
-        // Load data from DB initially
+    // Full reloads one after another, each started once the last is applied; stop() prints the stalls
+    private void runStallReloads(int remaining) {
+        if (remaining == 0) {
+            Platform.exit();
+            return;
+        }
         loadAllData();
+        pendingReload.whenComplete((result, error) -> Platform.runLater(() -> runStallReloads(remaining - 1)));
+    }
 
-        primaryStage.setTitle("Restaurant Management System");
+    private static long millisSinceLaunch() {
+        Instant launched = ProcessHandle.current().info().startInstant().orElse(LOADED);
+        return Duration.between(launched, Instant.now()).toMillis();
+    }
 
-        TabPane tabPane = new TabPane();
+    // Applies other terminals' changes as they arrive instead of waiting for the next reload
+    private void subscribeToOrderEvents() {
+        OrderEventBus eventBus = dbManager.getEventBus();
+        eventSubscription = eventBus.subscribe("ui", new OrderEventBus.Listener() {
+            @Override
+            public void onEvent(OrderEvent event) {
+                if (eventBus.getOrigin().equals(event.getOrigin())) return; // This terminal's handlers already applied it
+                Platform.runLater(() -> applyOrderEvent(event));
+            }
 
-        // --- Menu Tab ---
-        Tab menuTab = new Tab("Menu Management");
-        menuTab.setClosable(false);
-        menuTab.setContent(createMenuTab());
-        tabPane.getTabs().add(menuTab);
+            @Override
+            public void onOverrun(long missedEvents) {
+                Platform.runLater(() -> syncChanges()); // Events were lost; catch up from the database
+            }
+        });
+    }
 
-        // --- Order Tab ---
-        Tab orderTab = new Tab("Order Management");
-        orderTab.setClosable(false);
-        orderTab.setContent(createOrderTab());
-        tabPane.getTabs().add(orderTab);
+    private void applyOrderEvent(OrderEvent event) {
+        switch (event.getType()) {
+            case ORDER_STATUS_CHANGED:
+            case PAYMENT_STATUS_CHANGED:
+                // Carried in the event, so applied without a query; orders outside the window are skipped
+                Order order = orderPager.find(event.getEntityId());
+                if (order != null) {
+                    if (event.getType() == OrderEvent.Type.ORDER_STATUS_CHANGED) {
+                        order.setOrderStatus(event.getOrderStatus());
+                    } else {
+                        order.setOrderPaymentStatus(event.getPaymentStatus());
+                    }
+                    if (orderTable != null) orderTable.refresh(); // Rows edited in place do not fire list change events
+                }
+                applyOrderFilter(); // The order may have entered or left the filtered view
+                break;
+            case ORDER_PLACED:
+            case BOOKING_CHANGED:
+                queueEventSync();
+                break;
+        }
+        dbManager.getEventBus().recordApplied(event);
+    }
 
-        // --- Table Booking Tab ---
-        Tab bookingTab = new Tab("Table Booking");
-        bookingTab.setClosable(false);
-        bookingTab.setContent(createBookingTab());
-        tabPane.getTabs().add(bookingTab);
+    // A burst of received events (a dinner-rush round of orders) costs one delta sync, not one each
+    private void queueEventSync() {
+        if (eventSyncQueued) return;
+        eventSyncQueued = true;
+        Platform.runLater(() -> {
+            eventSyncQueued = false;
+            syncChanges();
+        });
+    }
 
-        Scene scene = new Scene(tabPane, 1200, 700); // Adjust size as needed
-        primaryStage.setScene(scene);
-        primaryStage.show();
+    // Shows offline operation in the title bar, and reloads everything once the offline queue is replayed
+    private void watchConnectivity() {
+        dbManager.setConnectivityListener(new DatabaseManager.ConnectivityListener() {
+            @Override
+            public void onOffline() {
+                Platform.runLater(() -> updateTitle());
+            }
+
+            @Override
+            public void onResynced(DatabaseManager.ResyncReport report) {
+                Platform.runLater(() -> {
+                    updateTitle();
+                    loadAllData(); // Rows created offline come back under their database IDs
+                    List<String> conflicts = report.getConflicts();
+                    if (!conflicts.isEmpty()) {
+                        showAlert(Alert.AlertType.WARNING, "Back Online", conflicts.size() + " Offline Change(s) Not Applied",
+                                  String.join("\n", conflicts.subList(0, Math.min(conflicts.size(), 10)))
+                                + (conflicts.size() > 10 ? "\n... and " + (conflicts.size() - 10) + " more (see the log)." : ""));
+                    }
+                });
+            }
+        });
+    }
+
+    private void updateTitle() {
+        primaryStage.setTitle("Restaurant Management System" + (dbManager.isOffline() ? " - OFFLINE (changes are queued)" : ""));
     }
 
     private void loadAllData() {
-        // Only load if dbManager is properly initialized and connected
-        if (dbManager != null && dbManager.getConnection() != null) {
-            menuItems.setAll(dbManager.loadMenuItems());
-            System.out.println("Menu items reloaded from DB. Total: " + menuItems.size());
+        refreshData(true);
+    }
+
+    // Fetches only rows changed since the last sync and applies them as targeted list updates
+    private void syncChanges() {
+        refreshData(false);
+    }
+
+    private void refreshData(boolean fullReload) {
+        // Only load if dbManager is properly initialized and connected, or serving local state offline
+        if (dbManager != null && (dbManager.isConnected() || dbManager.isOffline())) {
+            long reloadStart = System.nanoTime();
+            if (pendingReload != null) {
+                pendingReload.cancel(false); // Superseded: its results would be stale by the time they land
+            }
+            // The three loads run in parallel in the background and are applied together on the FX thread.
+            // Only the data sets a built tab shows are loaded; the others complete at once with null.
+            // A null watermark (nothing loaded yet) always means a full load.
+            CompletableFuture<ChangeSet<MenuItem>> menuLoad = menuWanted
+                    ? asyncDb.loadMenuItemChanges(fullReload ? null : menuWatermark)
+                    : CompletableFuture.completedFuture(null);
+            // Orders are paged: a full reload fetches just the newest page
+            CompletableFuture<ChangeSet<Order>> orderLoad = !ordersWanted ? CompletableFuture.completedFuture(null)
+                    : fullReload || !orderPager.isLoaded()
+                    ? orderPager.loadFirstPage()
+                    : asyncDb.loadOrderChanges(orderPager.getWatermark());
+            CompletableFuture<ChangeSet<TableBooking>> bookingLoad = bookingsWanted
+                    ? asyncDb.loadTableBookingChanges(fullReload ? null : bookingWatermark)
+                    : CompletableFuture.completedFuture(null);
+            CompletableFuture<Void> reload = CompletableFuture.allOf(menuLoad, orderLoad, bookingLoad).thenRun(() -> {
+                // Each list update is timed on its own: it runs on the FX thread, where a slow one stalls the UI
+                OperationMetrics metrics = dbManager.getMetrics();
+                if (menuLoad.join() != null) {
+                    long start = System.nanoTime();
+                    applyChanges(menuItems, menuItemsById, menuLoad.join(), MenuItem::getId, Main::copyMenuItem, menuTable);
+                    metrics.record("ui.apply.menuItems", start, changeCount(menuLoad.join()), false);
+                    menuWatermark = menuLoad.join().getWatermark();
+                    System.out.println("Menu items synced from DB: " + menuLoad.join() + ". Total: " + menuItems.size());
+                }
 
-            orders.setAll(dbManager.loadOrders());
-            System.out.println("Orders loaded from DB. Total: " + orders.size());
+                if (orderLoad.join() != null) {
+                    long start = System.nanoTime();
+                    orderPager.applyChanges(orderLoad.join());
+                    applyOrderFilter();
+                    metrics.record("ui.apply.orders", start, changeCount(orderLoad.join()), false);
+                    System.out.println("Orders synced from DB: " + orderLoad.join() + ". In view: " + orders.size());
+                }
 
-            tableBookings.setAll(dbManager.loadTableBookings());
-            System.out.println("Table bookings loaded from DB. Total: " + tableBookings.size());
+                if (bookingLoad.join() != null) {
+                    long start = System.nanoTime();
+                    applyChanges(tableBookings, bookingsById, bookingLoad.join(), TableBooking::getId, Main::copyTableBooking, bookingTable);
+                    metrics.record("ui.apply.tableBookings", start, changeCount(bookingLoad.join()), false);
+                    bookingWatermark = bookingLoad.join().getWatermark();
+                    System.out.println("Table bookings synced from DB: " + bookingLoad.join() + ". Total: " + tableBookings.size());
+                }
+            });
+            // From the request to the last list updated; a superseded reload is not counted
+            reload.whenComplete((result, error) -> {
+                if (!reload.isCancelled()) {
+                    dbManager.getMetrics().record(fullReload ? "ui.loadAllData" : "ui.syncChanges", reloadStart, 0, error != null);
+                }
+            });
+            reload.exceptionally(error -> {
+                if (!reload.isCancelled()) {
+                    showDbError("Failed to Load Data", error);
+                }
+                return null;
+            });
+            pendingReload = reload;
         } else {
             System.err.println("Database manager not initialized or connected. Cannot load data.");
         }
     }
 
+    private static long changeCount(ChangeSet<?> changes) {
+        return changes.getUpserted().size() + changes.getDeletedIds().size();
+    }
+
+    /**
+     * Applies a change set to a list. A full load replaces the list; a delta copies updated rows
+     * into the existing objects, appends new rows and removes deleted ones, so the cost depends
+     * on the number of changes rather than the size of the list. Orders go through OrderPager.
+     */
+    private static <T> void applyChanges(ObservableList<T> list, Map<Integer, T> byId, ChangeSet<T> changes,
+                                         ToIntFunction<T> idOf, BiConsumer<T, T> copyInto, TableView<T> table) {
+        if (changes.isFullLoad()) {
+            byId.clear();
+            for (T row : changes.getUpserted()) {
+                byId.put(idOf.applyAsInt(row), row);
+            }
+            list.setAll(changes.getUpserted());
+            return;
+        }
+
+        boolean updatedInPlace = false;
+        List<T> inserted = new ArrayList<>();
+        for (T row : changes.getUpserted()) {
+            T existing = byId.get(idOf.applyAsInt(row));
+            if (existing != null) {
+                copyInto.accept(row, existing);
+                updatedInPlace = true;
+            } else {
+                byId.put(idOf.applyAsInt(row), row);
+                inserted.add(row);
+            }
+        }
+        for (int id : changes.getDeletedIds()) {
+            T removed = byId.remove(id);
+            if (removed != null) {
+                list.remove(removed);
+            }
+        }
+        if (!inserted.isEmpty()) {
+            list.addAll(inserted);
+        }
+        if (updatedInPlace && table != null) {
+            table.refresh(); // Rows edited in place do not fire list change events
+        }
+    }
+
+    private static void copyMenuItem(MenuItem from, MenuItem to) {
+        to.setName(from.getName());
+        to.setPriceCents(from.getPriceCents());
+    }
+
+    private static void copyTableBooking(TableBooking from, TableBooking to) {
+        to.setTableNumber(from.getTableNumber());
+        to.setCapacity(from.getCapacity());
+        to.setCustomerName(from.getCustomerName());
+        to.setBookingTime(from.getBookingTime());
+        to.setEndTime(from.getEndTime());
+    }
+
     private VBox createMenuTab() {
         VBox menuTabContent = new VBox(10);
         menuTabContent.setPadding(new Insets(10));
@@ -133,6 +470,8 @@ public class Main extends Application {
         menuItemNameField.setPromptText("Menu Item Name");
         menuItemPriceField = new TextField();
         menuItemPriceField.setPromptText("Price");
+        menuItemStockField = new TextField();
+        menuItemStockField.setPromptText("Stock (blank = untracked)");
 
         Button addButton = new Button("Add Item");
         addButton.setOnAction(e -> addMenuItem());
@@ -140,11 +479,14 @@ public class Main extends Application {
         updateButton.setOnAction(e -> updateMenuItem());
         Button deleteButton = new Button("Delete Item");
         deleteButton.setOnAction(e -> deleteMenuItem());
+        Button setStockButton = new Button("Set Stock");
+        setStockButton.setOnAction(e -> setMenuItemStock());
 
         formGrid.addRow(0, new Label("Name:"), menuItemNameField);
         formGrid.addRow(1, new Label("Price:"), menuItemPriceField);
-        HBox buttonBox = new HBox(10, addButton, updateButton, deleteButton);
-        formGrid.addRow(2, buttonBox);
+        formGrid.addRow(2, new Label("Stock:"), menuItemStockField);
+        HBox buttonBox = new HBox(10, addButton, updateButton, deleteButton, new Separator(), setStockButton);
+        formGrid.addRow(3, buttonBox);
 
         // Table for displaying menu items
         menuTable = new TableView<>();
@@ -156,21 +498,26 @@ public class Main extends Application {
         // CHANGED: Using lambda for cellValueFactory instead of PropertyValueFactory
         nameCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getName()));
         
-        TableColumn<MenuItem, Double> priceCol = new TableColumn<>("Price");
-        // CHANGED: Using lambda for cellValueFactory instead of PropertyValueFactory
-        priceCol.setCellValueFactory(cellData -> new SimpleDoubleProperty(cellData.getValue().getPrice()).asObject());
+        TableColumn<MenuItem, Long> priceCol = moneyColumn("Price", MenuItem::getPriceCents);
 
-        menuTable.getColumns().addAll(idCol, nameCol, priceCol);
+        // Units left from the stock ledger; re-read whenever the table refreshes
+        TableColumn<MenuItem, String> stockCol = new TableColumn<>("Stock");
+        stockCol.setCellValueFactory(cellData -> new SimpleStringProperty(stockText(cellData.getValue().getId())));
+
+        menuTable.getColumns().addAll(List.of(idCol, nameCol, priceCol, stockCol));
         menuTable.setItems(menuItems);
 
         // Listener for selecting items in the table
         menuTable.getSelectionModel().selectedItemProperty().addListener((obs, oldSelection, newSelection) -> {
             if (newSelection != null) {
                 menuItemNameField.setText(newSelection.getName());
-                menuItemPriceField.setText(String.valueOf(newSelection.getPrice()));
+                menuItemPriceField.setText(Money.format(newSelection.getPriceCents()));
+                StockLedger stock = dbManager.getStockLedger();
+                menuItemStockField.setText(stock.isTracked(newSelection.getId()) ? String.valueOf(stock.available(newSelection.getId())) : "");
             } else {
                 menuItemNameField.clear();
                 menuItemPriceField.clear();
+                menuItemStockField.clear();
             }
         });
 
@@ -181,18 +528,20 @@ public class Main extends Application {
     private void addMenuItem() {
         try {
             String name = menuItemNameField.getText();
-            double price = Double.parseDouble(menuItemPriceField.getText());
-            MenuItem newItem = new MenuItem(0, name, price); // ID will be set by DB
+            long priceCents = Money.parse(menuItemPriceField.getText()); // Rounded to the cent
+            MenuItem newItem = new MenuItem(0, name, priceCents); // ID will be set by DB
 
-            dbManager.addMenuItem(newItem);
-            menuItems.add(newItem); // Add with the DB-generated ID
-            clearMenuItemFields();
-            showAlert(Alert.AlertType.INFORMATION, "Success", "Menu Item Added", "Menu item '" + name + "' has been added.");
+            asyncDb.addMenuItem(newItem).whenComplete((ignored, error) -> {
+                if (error != null) {
+                    showDbError("Failed to Add Menu Item", error);
+                    return;
+                }
+                syncChanges(); // Picks up the new row with its DB-generated ID
+                clearMenuItemFields();
+                showAlert(Alert.AlertType.INFORMATION, "Success", "Menu Item Added", "Menu item '" + name + "' has been added.");
+            });
         } catch (NumberFormatException e) {
             showAlert(Alert.AlertType.ERROR, "Error", "Invalid Input", "Please enter a valid number for price.");
-        } catch (SQLException e) {
-            showAlert(Alert.AlertType.ERROR, "DB Error", "Failed to Add Menu Item", "Error: " + e.getMessage());
-            e.printStackTrace();
         }
     }
 
@@ -201,20 +550,22 @@ public class Main extends Application {
         if (selectedItem != null) {
             try {
                 String name = menuItemNameField.getText();
-                double price = Double.parseDouble(menuItemPriceField.getText());
+                long priceCents = Money.parse(menuItemPriceField.getText()); // Rounded to the cent
 
                 selectedItem.setName(name);
-                selectedItem.setPrice(price);
+                selectedItem.setPriceCents(priceCents);
 
-                dbManager.updateMenuItem(selectedItem);
-                menuTable.refresh(); // Refresh the table to show updated data
-                clearMenuItemFields();
-                showAlert(Alert.AlertType.INFORMATION, "Success", "Menu Item Updated", "Menu item '" + name + "' has been updated.");
+                asyncDb.updateMenuItem(selectedItem).whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        showDbError("Failed to Update Menu Item", error);
+                        return;
+                    }
+                    menuTable.refresh(); // Refresh the table to show updated data
+                    clearMenuItemFields();
+                    showAlert(Alert.AlertType.INFORMATION, "Success", "Menu Item Updated", "Menu item '" + name + "' has been updated.");
+                });
             } catch (NumberFormatException e) {
                 showAlert(Alert.AlertType.ERROR, "Error", "Invalid Input", "Please enter a valid number for price.");
-            } catch (SQLException e) {
-                showAlert(Alert.AlertType.ERROR, "DB Error", "Failed to Update Menu Item", "Error: " + e.getMessage());
-                e.printStackTrace();
             }
         } else {
             showAlert(Alert.AlertType.WARNING, "No Selection", "No Menu Item Selected", "Please select a menu item to update.");
@@ -231,24 +582,54 @@ public class Main extends Application {
 
             Optional<ButtonType> result = alert.showAndWait();
             if (result.isPresent() && result.get() == ButtonType.OK) {
-                try {
-                    dbManager.deleteMenuItem(selectedItem.getId());
-                    menuItems.remove(selectedItem);
+                asyncDb.deleteMenuItem(selectedItem.getId()).whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        showDbError("Failed to Delete Menu Item", error);
+                        return;
+                    }
+                    syncChanges(); // Removes the row via its deletion record
                     clearMenuItemFields();
                     showAlert(Alert.AlertType.INFORMATION, "Success", "Menu Item Deleted", "Menu item '" + selectedItem.getName() + "' has been deleted.");
-                } catch (SQLException e) {
-                    showAlert(Alert.AlertType.ERROR, "DB Error", "Failed to Delete Menu Item", "Error: " + e.getMessage());
-                    e.printStackTrace();
-                }
+                });
             }
         } else {
             showAlert(Alert.AlertType.WARNING, "No Selection", "No Menu Item Selected", "Please select a menu item to delete.");
         }
     }
 
+    private String stockText(int menuItemId) {
+        StockLedger stock = dbManager.getStockLedger();
+        return stock.isTracked(menuItemId) ? String.valueOf(stock.available(menuItemId)) : "-";
+    }
+
+    private void setMenuItemStock() {
+        MenuItem selectedItem = menuTable.getSelectionModel().getSelectedItem();
+        if (selectedItem == null) {
+            showAlert(Alert.AlertType.WARNING, "No Selection", "No Menu Item Selected", "Please select a menu item to set its stock.");
+            return;
+        }
+        try {
+            String text = menuItemStockField.getText().trim();
+            Integer stock = text.isEmpty() ? null : Integer.valueOf(text);
+            asyncDb.setStock(selectedItem.getId(), stock).whenComplete((ignored, error) -> {
+                if (error != null) {
+                    showDbError("Failed to Set Stock", error);
+                    return;
+                }
+                menuTable.refresh();
+                showAlert(Alert.AlertType.INFORMATION, "Success", "Stock Updated", stock == null
+                        ? "'" + selectedItem.getName() + "' is no longer stock-tracked."
+                        : "'" + selectedItem.getName() + "' has " + stock + " in stock.");
+            });
+        } catch (NumberFormatException e) {
+            showAlert(Alert.AlertType.ERROR, "Error", "Invalid Input", "Please enter a whole number for stock, or leave it blank.");
+        }
+    }
+
     private void clearMenuItemFields() {
         menuItemNameField.clear();
         menuItemPriceField.clear();
+        menuItemStockField.clear();
         menuTable.getSelectionModel().clearSelection();
     }
 
@@ -273,11 +654,9 @@ public class Main extends Application {
         // CHANGED: Using lambda for cellValueFactory
         itemSelectNameCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getName()));
         
-        TableColumn<MenuItem, Double> itemSelectPriceCol = new TableColumn<>("Price");
-        // CHANGED: Using lambda for cellValueFactory
-        itemSelectPriceCol.setCellValueFactory(cellData -> new SimpleDoubleProperty(cellData.getValue().getPrice()).asObject());
+        TableColumn<MenuItem, Long> itemSelectPriceCol = moneyColumn("Price", MenuItem::getPriceCents);
 
-        orderMenuItemSelectionTable.getColumns().addAll(itemSelectNameCol, itemSelectPriceCol);
+        orderMenuItemSelectionTable.getColumns().addAll(List.of(itemSelectNameCol, itemSelectPriceCol));
         orderMenuItemSelectionTable.setItems(menuItems); // Use the existing menuItems list
 
         HBox addRemoveItemBox = new HBox(10);
@@ -298,50 +677,50 @@ public class Main extends Application {
         // CHANGED: Using lambda for cellValueFactory
         currentItemQtyCol.setCellValueFactory(cellData -> new SimpleIntegerProperty(cellData.getValue().getQuantity()).asObject());
         
-        TableColumn<OrderItem, Double> currentItemPriceCol = new TableColumn<>("Price Each");
-        // CHANGED: Using lambda for cellValueFactory
-        currentItemPriceCol.setCellValueFactory(cellData -> new SimpleDoubleProperty(cellData.getValue().getPriceAtOrder()).asObject());
-        
-        TableColumn<OrderItem, Double> currentItemTotalCol = new TableColumn<>("Subtotal");
-        // This was already a lambda, so it's fine.
-        currentItemTotalCol.setCellValueFactory(cellData -> {
-            OrderItem item = cellData.getValue();
-            return new SimpleDoubleProperty(item.getQuantity() * item.getPriceAtOrder()).asObject();
-        });
-        currentOrderItemsTable.getColumns().addAll(currentItemNameCol, currentItemQtyCol, currentItemPriceCol, currentItemTotalCol);
+        TableColumn<OrderItem, Long> currentItemPriceCol = moneyColumn("Price Each", OrderItem::getPriceCents);
+        TableColumn<OrderItem, Long> currentItemTotalCol = moneyColumn("Subtotal", OrderItem::getLineCents);
+        currentOrderItemsTable.getColumns().addAll(List.of(currentItemNameCol, currentItemQtyCol, currentItemPriceCol, currentItemTotalCol));
         currentOrderItemsTable.setItems(currentOrderItems);
 
 
         // --- Existing Orders Section ---
         Label existingOrdersLabel = new Label("Existing Orders:");
+        HBox orderFilterBox = new HBox(10);
+        orderStatusFilter = filterChoices(new OrderStatus[] { OrderStatus.PENDING, OrderStatus.PREPARING, OrderStatus.SERVED }, // Cancelled orders are never open
+                                          OrderStatus::getDbValue);
+        orderPaymentFilter = filterChoices(PaymentStatus.values(), PaymentStatus::getDbValue);
+        orderTableFilter = new TextField();
+        orderTableFilter.setPromptText("Any table");
+        orderTableFilter.setPrefWidth(80);
+        orderStatusFilter.setOnAction(e -> applyOrderFilter());
+        orderPaymentFilter.setOnAction(e -> applyOrderFilter());
+        orderTableFilter.textProperty().addListener((obs, oldText, newText) -> applyOrderFilter());
+        Button clearFilterButton = new Button("Clear Filter");
+        clearFilterButton.setOnAction(e -> {
+            orderStatusFilter.setValue(ANY_FILTER);
+            orderPaymentFilter.setValue(ANY_FILTER);
+            orderTableFilter.clear();
+        });
+        orderFilterBox.getChildren().addAll(new Label("Open orders - Status:"), orderStatusFilter, new Label("Payment:"), orderPaymentFilter,
+                                            new Label("Table:"), orderTableFilter, clearFilterButton);
         orderTable = new TableView<>();
-        TableColumn<Order, Integer> orderIdCol = new TableColumn<>("Order ID");
-        // CHANGED: Using lambda for cellValueFactory
-        orderIdCol.setCellValueFactory(cellData -> new SimpleIntegerProperty(cellData.getValue().getId()).asObject());
-        
-        TableColumn<Order, Integer> orderTableCol = new TableColumn<>("Table No.");
-        // CHANGED: Using lambda for cellValueFactory
-        orderTableCol.setCellValueFactory(cellData -> new SimpleIntegerProperty(cellData.getValue().getTableNumber()).asObject());
-        
-        TableColumn<Order, Timestamp> orderTimeCol = new TableColumn<>("Order Time");
-        // CHANGED: Using lambda for cellValueFactory (Timestamp is an Object, so no Simple*Property needed, but it works fine with it too)
-        orderTimeCol.setCellValueFactory(cellData -> new SimpleObjectProperty<>(cellData.getValue().getOrderTime()));
-        
-        TableColumn<Order, Double> orderTotalCol = new TableColumn<>("Total Amount");
-        // CHANGED: Using lambda for cellValueFactory
-        orderTotalCol.setCellValueFactory(cellData -> new SimpleDoubleProperty(cellData.getValue().getTotalAmount()).asObject());
-        
-        TableColumn<Order, String> orderStatusCol = new TableColumn<>("Status"); // Display status
-        // CHANGED: Using lambda for cellValueFactory
-        orderStatusCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getStatus()));
-        
-        TableColumn<Order, String> orderPaymentStatusCol = new TableColumn<>("Payment"); // Display payment status
-        // CHANGED: Using lambda for cellValueFactory
-        orderPaymentStatusCol.setCellValueFactory(cellData -> new SimpleStringProperty(cellData.getValue().getPaymentStatus()));
-
-
-        orderTable.getColumns().addAll(orderIdCol, orderTableCol, orderTimeCol, orderTotalCol, orderStatusCol, orderPaymentStatusCol);
+        // Order columns render straight from the Order's primitive fields (see orderColumn)
+        TableColumn<Order, Order> orderIdCol = orderColumn("Order ID",
+                order -> Integer.toString(order.getId()), Comparator.comparingInt(Order::getId));
+        TableColumn<Order, Order> orderTableCol = orderColumn("Table No.",
+                order -> Integer.toString(order.getTableNumber()), Comparator.comparingInt(Order::getTableNumber));
+        TableColumn<Order, Order> orderTimeCol = orderColumn("Order Time",
+                order -> ORDER_TIME_FORMAT.format(Instant.ofEpochMilli(order.getOrderTimeMillis())), Comparator.comparingLong(Order::getOrderTimeMillis));
+        TableColumn<Order, Order> orderTotalCol = orderColumn("Total Amount",
+                order -> Money.format(order.getTotalCents()), Comparator.comparingLong(Order::getTotalCents));
+        TableColumn<Order, Order> orderStatusCol = orderColumn("Status", // Display status
+                Order::getStatus, Comparator.comparing(Order::getOrderStatus));
+        TableColumn<Order, Order> orderPaymentStatusCol = orderColumn("Payment", // Display payment status
+                Order::getPaymentStatus, Comparator.comparing(Order::getOrderPaymentStatus));
+
+        orderTable.getColumns().addAll(List.of(orderIdCol, orderTableCol, orderTimeCol, orderTotalCol, orderStatusCol, orderPaymentStatusCol));
         orderTable.setItems(orders);
+        orderPager.attach(orderTable); // Fetches older/newer pages as the table is scrolled
 
         // Order details expansion
         orderTable.setRowFactory(tv -> {
@@ -353,9 +732,11 @@ public class Main extends Application {
                     Label itemsLabel = new Label("Items:");
                     detailsBox.getChildren().add(itemsLabel);
 
-                    for (OrderItem oi : newItem.getItems()) {
-                        detailsBox.getChildren().add(new Label(String.format("  - %s (x%d) @ %.2f = %.2f",
-                                oi.getItemName(), oi.getQuantity(), oi.getPriceAtOrder(), oi.getQuantity() * oi.getPriceAtOrder())));
+                    for (int i = 0; i < newItem.getItemCount(); i++) {
+                        long priceCents = newItem.getItemPriceCents(i);
+                        int quantity = newItem.getItemQuantity(i);
+                        detailsBox.getChildren().add(new Label(String.format("  - %s (x%d) @ %s = %s",
+                                newItem.getItemName(i), quantity, Money.format(priceCents), Money.format(Money.times(priceCents, quantity)))));
                     }
 
                     // Status update buttons
@@ -384,10 +765,45 @@ public class Main extends Application {
         // Add all to the tab content
         orderTabContent.getChildren().addAll(newOrderLabel, newOrderInputs, selectItemsLabel, orderMenuItemSelectionTable,
                                             addRemoveItemBox, currentOrderItemsLabel, currentOrderItemsTable,
-                                            existingOrdersLabel, orderTable);
+                                            existingOrdersLabel, orderFilterBox, orderTable);
         return orderTabContent;
     }
 
+    private static <T> ComboBox<String> filterChoices(T[] values, Function<T, String> dbValue) {
+        ComboBox<String> choices = new ComboBox<>();
+        choices.getItems().add(ANY_FILTER);
+        for (T value : values) {
+            choices.getItems().add(dbValue.apply(value));
+        }
+        choices.setValue(ANY_FILTER);
+        return choices;
+    }
+
+    /**
+     * With any filter set, the order table shows the open orders that match, straight from the
+     * order index: no query, and the cost follows the number of matches. With none set it goes
+     * back to the paged list of all orders.
+     */
+    private void applyOrderFilter() {
+        if (orderTable == null) return; // Not built yet
+        String statusValue = orderStatusFilter.getValue();
+        String paymentValue = orderPaymentFilter.getValue();
+        OrderStatus status = statusValue == null || ANY_FILTER.equals(statusValue) ? null : OrderStatus.fromDbValue(statusValue);
+        PaymentStatus paymentStatus = paymentValue == null || ANY_FILTER.equals(paymentValue) ? null : PaymentStatus.fromDbValue(paymentValue);
+        int tableNumber = 0;
+        try {
+            String text = orderTableFilter.getText().trim();
+            if (!text.isEmpty()) tableNumber = Integer.parseInt(text);
+        } catch (NumberFormatException e) {
+            // Ignored while it is being typed
+        }
+        if (status == null && paymentStatus == null && tableNumber == 0) {
+            if (orderTable.getItems() != orders) orderTable.setItems(orders);
+            return;
+        }
+        orderTable.setItems(FXCollections.observableArrayList(dbManager.getOrderIndex().find(status, paymentStatus, tableNumber)));
+    }
+
 
     private void addItemToCurrentOrder(TableView<MenuItem> itemSelectionTable, TextField quantityField) {
         MenuItem selectedMenuItem = itemSelectionTable.getSelectionModel().getSelectedItem();
@@ -411,7 +827,7 @@ public class Main extends Application {
                     currentOrderItemsTable.refresh(); // Refresh the table to show updated quantity
                 } else {
                     // Add new item to the list
-                    currentOrderItems.add(new OrderItem(selectedMenuItem.getId(), selectedMenuItem.getName(), quantity, selectedMenuItem.getPrice()));
+                    currentOrderItems.add(new OrderItem(selectedMenuItem.getId(), selectedMenuItem.getName(), quantity, selectedMenuItem.getPriceCents()));
                 }
                 quantityField.setText("1"); // Reset quantity field
             } catch (NumberFormatException e) {
@@ -436,28 +852,27 @@ public class Main extends Application {
                  return;
             }
 
-            double totalAmount = currentOrderItems.stream()
-                                                .mapToDouble(item -> item.getQuantity() * item.getPriceAtOrder())
-                                                .sum();
-
-            int orderId = dbManager.createOrder(tableNumber, totalAmount);
-            if (orderId != -1) {
-                for (OrderItem item : currentOrderItems) {
-                    dbManager.addOrderItem(orderId, item.getMenuItemId(), item.getQuantity(), item.getPriceAtOrder());
+            // Snapshot the lines: the order builder can be edited while the insert is running.
+            // The order total is computed by the database from the inserted lines.
+            List<OrderItem> items = new ArrayList<>(currentOrderItems);
+            asyncDb.placeOrder(tableNumber, items).whenComplete((orderId, error) -> {
+                if (error != null) {
+                    showDbError("Order Placement Failed", error);
+                    return;
+                }
+                if (orderId < 0) {
+                    showAlert(Alert.AlertType.INFORMATION, "Order Saved Offline", "Order for Table " + tableNumber + " Saved",
+                              "The database is unreachable; the order is saved on this terminal and will be sent when it is back.");
+                } else {
+                    showAlert(Alert.AlertType.INFORMATION, "Order Placed", "Order #" + orderId + " Placed", "Order for table " + tableNumber + " placed successfully!");
                 }
-
-                showAlert(Alert.AlertType.INFORMATION, "Order Placed", "Order #" + orderId + " Placed", "Order for table " + tableNumber + " placed successfully!");
                 clearNewOrderFields();
-                loadAllData(); // Reload all data to refresh tables
-            } else {
-                showAlert(Alert.AlertType.ERROR, "Order Error", "Failed to Place Order", "Could not create order in the database.");
-            }
+                if (menuTable != null) menuTable.refresh(); // Stock column; the menu tab may not be built yet
+                syncChanges(); // Fetch just the new order rather than reloading everything
+            });
 
         } catch (NumberFormatException e) {
             showAlert(Alert.AlertType.ERROR, "Invalid Input", "Table Number Error", "Please enter a valid table number.");
-        } catch (SQLException e) {
-            showAlert(Alert.AlertType.ERROR, "DB Error", "Order Placement Failed", "Error: " + e.getMessage());
-            e.printStackTrace();
         }
     }
 
@@ -467,30 +882,65 @@ public class Main extends Application {
     }
 
     private void updateOrderStatus(Order order, String newStatus) {
-        try {
-            dbManager.updateOrderStatus(order.getId(), newStatus);
+        asyncDb.updateOrderStatus(order.getId(), newStatus).whenComplete((ignored, error) -> {
+            if (error != null) {
+                showDbError("Status Update Failed", error);
+                return;
+            }
             order.setStatus(newStatus); // Update the ObservableList item directly
             orderTable.refresh(); // Refresh the table view
+            applyOrderFilter(); // It may have left the filtered view
             showAlert(Alert.AlertType.INFORMATION, "Status Updated", "Order #" + order.getId() + " Status", "Order status updated to: " + newStatus);
-        } catch (SQLException e) {
-            showAlert(Alert.AlertType.ERROR, "DB Error", "Status Update Failed", "Error updating order status: " + e.getMessage());
-            e.printStackTrace();
-        }
+        });
     }
 
     private void updateOrderPaymentStatus(Order order, String newPaymentStatus) {
-        try {
-            dbManager.updateOrderPaymentStatus(order.getId(), newPaymentStatus);
+        asyncDb.updateOrderPaymentStatus(order.getId(), newPaymentStatus).whenComplete((ignored, error) -> {
+            if (error != null) {
+                showDbError("Payment Status Update Failed", error);
+                return;
+            }
             order.setPaymentStatus(newPaymentStatus); // Update the ObservableList item directly
             orderTable.refresh(); // Refresh the table view
+            applyOrderFilter(); // It may have left the filtered view
             showAlert(Alert.AlertType.INFORMATION, "Payment Status Updated", "Order #" + order.getId() + " Payment Status", "Order payment status updated to: " + newPaymentStatus);
-        } catch (SQLException e) {
-            showAlert(Alert.AlertType.ERROR, "DB Error", "Payment Status Update Failed", "Error updating order payment status: " + e.getMessage());
-            e.printStackTrace();
-        }
+        });
     }
 
 
+    /**
+     * Creates an orders column whose cell value is the Order itself and whose cells format the
+     * field they show. This replaces a Simple*Property plus a boxed value per cell with one
+     * small wrapper around the existing Order.
+     */
+    private static TableColumn<Order, Order> orderColumn(String title, Function<Order, String> text, Comparator<Order> comparator) {
+        TableColumn<Order, Order> column = new TableColumn<>(title);
+        column.setCellValueFactory(cellData -> new ReadOnlyObjectWrapper<>(cellData.getValue()));
+        column.setCellFactory(col -> new TableCell<Order, Order>() {
+            @Override
+            protected void updateItem(Order order, boolean empty) {
+                super.updateItem(order, empty);
+                setText(empty || order == null ? null : text.apply(order));
+            }
+        });
+        column.setComparator(comparator);
+        return column;
+    }
+
+    // Holds the cents, so the column sorts by amount, and shows them as money
+    private static <S> TableColumn<S, Long> moneyColumn(String title, ToLongFunction<S> cents) {
+        TableColumn<S, Long> column = new TableColumn<>(title);
+        column.setCellValueFactory(cellData -> new ReadOnlyObjectWrapper<>(cents.applyAsLong(cellData.getValue())));
+        column.setCellFactory(col -> new TableCell<S, Long>() {
+            @Override
+            protected void updateItem(Long value, boolean empty) {
+                super.updateItem(value, empty);
+                setText(empty || value == null ? null : Money.format(value));
+            }
+        });
+        return column;
+    }
+
     private VBox createBookingTab() {
         VBox bookingTabContent = new VBox(10);
         bookingTabContent.setPadding(new Insets(10));
@@ -507,6 +957,10 @@ public class Main extends Application {
         bookingCapacityField.setPromptText("Capacity");
         bookingCustomerNameField = new TextField();
         bookingCustomerNameField.setPromptText("Customer Name");
+        bookingStartField = new TextField();
+        bookingStartField.setPromptText("yyyy-MM-dd HH:mm (blank = now)");
+        bookingDurationField = new TextField(Long.toString(TableBooking.DEFAULT_DURATION_MILLIS / 60_000L));
+        bookingDurationField.setPromptText("Minutes");
 
         Button addBookingButton = new Button("Add Booking");
         addBookingButton.setOnAction(e -> addBooking());
@@ -514,12 +968,18 @@ public class Main extends Application {
         updateBookingButton.setOnAction(e -> updateBooking());
         Button deleteBookingButton = new Button("Delete Booking");
         deleteBookingButton.setOnAction(e -> deleteBooking());
+        Button findTablesButton = new Button("Find Free Tables");
+        findTablesButton.setOnAction(e -> findFreeTables());
+        Button reserveButton = new Button("Reserve Any Table");
+        reserveButton.setOnAction(e -> reserveAnyTable());
 
         formGrid.addRow(0, new Label("Table No:"), bookingTableNumberField);
         formGrid.addRow(1, new Label("Capacity:"), bookingCapacityField);
         formGrid.addRow(2, new Label("Customer:"), bookingCustomerNameField);
-        HBox buttonBox = new HBox(10, addBookingButton, updateBookingButton, deleteBookingButton);
-        formGrid.addRow(3, buttonBox);
+        formGrid.addRow(3, new Label("Start:"), bookingStartField);
+        formGrid.addRow(4, new Label("Minutes:"), bookingDurationField);
+        HBox buttonBox = new HBox(10, addBookingButton, updateBookingButton, deleteBookingButton, new Separator(), findTablesButton, reserveButton);
+        formGrid.addRow(5, buttonBox);
 
         // Table for displaying bookings
         bookingTable = new TableView<>();
@@ -543,7 +1003,10 @@ public class Main extends Application {
         // CHANGED: Using lambda for cellValueFactory
         bookingTimeCol.setCellValueFactory(cellData -> new SimpleObjectProperty<>(cellData.getValue().getBookingTime()));
 
-        bookingTable.getColumns().addAll(bookingIdCol, bookingTableNoCol, bookingCapacityCol, bookingCustomerNameCol, bookingTimeCol);
+        TableColumn<TableBooking, Timestamp> bookingEndCol = new TableColumn<>("Until");
+        bookingEndCol.setCellValueFactory(cellData -> new SimpleObjectProperty<>(cellData.getValue().getEndTime()));
+
+        bookingTable.getColumns().addAll(List.of(bookingIdCol, bookingTableNoCol, bookingCapacityCol, bookingCustomerNameCol, bookingTimeCol, bookingEndCol));
         bookingTable.setItems(tableBookings);
 
         // Listener for selecting items in the table
@@ -552,7 +1015,13 @@ public class Main extends Application {
                 bookingTableNumberField.setText(String.valueOf(newSelection.getTableNumber()));
                 bookingCapacityField.setText(String.valueOf(newSelection.getCapacity()));
                 bookingCustomerNameField.setText(newSelection.getCustomerName());
-                // Booking time might be trickier to display/edit directly unless using a DateTimePicker
+                if (newSelection.getBookingTime() != null) {
+                    bookingStartField.setText(newSelection.getBookingTime().toLocalDateTime().format(BOOKING_TIME_FORMAT));
+                    if (newSelection.getEndTime() != null) {
+                        bookingDurationField.setText(Long.toString(
+                                (newSelection.getEndTime().getTime() - newSelection.getBookingTime().getTime()) / 60_000L));
+                    }
+                }
             } else {
                 clearBookingFields();
             }
@@ -567,18 +1036,23 @@ public class Main extends Application {
             int tableNumber = Integer.parseInt(bookingTableNumberField.getText());
             int capacity = Integer.parseInt(bookingCapacityField.getText());
             String customerName = bookingCustomerNameField.getText();
-            Timestamp bookingTime = Timestamp.valueOf(LocalDateTime.now()); // Set current time as booking time
+            Timestamp bookingTime = readBookingStart();
+            Timestamp endTime = readBookingEnd(bookingTime);
 
-            TableBooking newBooking = new TableBooking(0, tableNumber, capacity, customerName, bookingTime);
-            dbManager.addTableBooking(newBooking);
-            tableBookings.add(newBooking); // Add with DB-generated ID
-            clearBookingFields();
-            showAlert(Alert.AlertType.INFORMATION, "Success", "Table Booking Added", "Booking for table " + tableNumber + " for " + customerName + " has been added.");
+            TableBooking newBooking = new TableBooking(0, tableNumber, capacity, customerName, bookingTime, endTime);
+            asyncDb.addTableBooking(newBooking).whenComplete((ignored, error) -> {
+                if (error != null) {
+                    showDbError("Failed to Add Table Booking", error);
+                    return;
+                }
+                syncChanges(); // Picks up the new row with its DB-generated ID
+                clearBookingFields();
+                showAlert(Alert.AlertType.INFORMATION, "Success", "Table Booking Added", "Booking for table " + tableNumber + " for " + customerName + " has been added.");
+            });
         } catch (NumberFormatException e) {
-            showAlert(Alert.AlertType.ERROR, "Error", "Invalid Input", "Please enter valid numbers for table number and capacity.");
-        } catch (SQLException e) {
-            showAlert(Alert.AlertType.ERROR, "DB Error", "Failed to Add Table Booking", "Error: " + e.getMessage());
-            e.printStackTrace();
+            showAlert(Alert.AlertType.ERROR, "Error", "Invalid Input", "Please enter valid numbers for table number, capacity and minutes.");
+        } catch (DateTimeParseException e) {
+            showAlert(Alert.AlertType.ERROR, "Error", "Invalid Input", "Please enter the start as yyyy-MM-dd HH:mm.");
         }
     }
 
@@ -589,21 +1063,26 @@ public class Main extends Application {
                 int tableNumber = Integer.parseInt(bookingTableNumberField.getText());
                 int capacity = Integer.parseInt(bookingCapacityField.getText());
                 String customerName = bookingCustomerNameField.getText();
+                Timestamp bookingTime = readBookingStart();
 
-                selectedBooking.setTableNumber(tableNumber);
-                selectedBooking.setCapacity(capacity);
-                selectedBooking.setCustomerName(customerName);
-                // Booking time is not updated via text field in this example
+                // Edit a copy: the row keeps its old values if the new slot is refused
+                TableBooking edited = new TableBooking(selectedBooking.getId(), tableNumber, capacity, customerName,
+                                                       bookingTime, readBookingEnd(bookingTime));
 
-                dbManager.updateTableBooking(selectedBooking);
-                bookingTable.refresh();
-                clearBookingFields();
-                showAlert(Alert.AlertType.INFORMATION, "Success", "Table Booking Updated", "Booking for table " + tableNumber + " has been updated.");
+                asyncDb.updateTableBooking(edited).whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        showDbError("Failed to Update Table Booking", error);
+                        return;
+                    }
+                    copyTableBooking(edited, selectedBooking);
+                    bookingTable.refresh();
+                    clearBookingFields();
+                    showAlert(Alert.AlertType.INFORMATION, "Success", "Table Booking Updated", "Booking for table " + tableNumber + " has been updated.");
+                });
             } catch (NumberFormatException e) {
-                showAlert(Alert.AlertType.ERROR, "Error", "Invalid Input", "Please enter valid numbers for table number and capacity.");
-            } catch (SQLException e) {
-                showAlert(Alert.AlertType.ERROR, "DB Error", "Failed to Update Table Booking", "Error: " + e.getMessage());
-                e.printStackTrace();
+                showAlert(Alert.AlertType.ERROR, "Error", "Invalid Input", "Please enter valid numbers for table number, capacity and minutes.");
+            } catch (DateTimeParseException e) {
+                showAlert(Alert.AlertType.ERROR, "Error", "Invalid Input", "Please enter the start as yyyy-MM-dd HH:mm.");
             }
         } else {
             showAlert(Alert.AlertType.WARNING, "No Selection", "No Booking Selected", "Please select a table booking to update.");
@@ -620,25 +1099,82 @@ public class Main extends Application {
 
             Optional<ButtonType> result = alert.showAndWait();
             if (result.isPresent() && result.get() == ButtonType.OK) {
-                try {
-                    dbManager.deleteTableBooking(selectedBooking.getId());
-                    tableBookings.remove(selectedBooking);
+                asyncDb.deleteTableBooking(selectedBooking.getId()).whenComplete((ignored, error) -> {
+                    if (error != null) {
+                        showDbError("Failed to Delete Table Booking", error);
+                        return;
+                    }
+                    syncChanges(); // Removes the row via its deletion record
                     clearBookingFields();
                     showAlert(Alert.AlertType.INFORMATION, "Success", "Table Booking Deleted", "Booking has been deleted.");
-                } catch (SQLException e) {
-                    showAlert(Alert.AlertType.ERROR, "DB Error", "Failed to Delete Table Booking", "Error: " + e.getMessage());
-                    e.printStackTrace();
-                }
+                });
             }
         } else {
             showAlert(Alert.AlertType.WARNING, "No Selection", "No Booking Selected", "Please select a table booking to delete.");
         }
     }
 
+    // Lists the tables that seat the party (Capacity field) and are free for the slot, from the in-memory index
+    private void findFreeTables() {
+        try {
+            int partySize = Integer.parseInt(bookingCapacityField.getText());
+            Timestamp start = readBookingStart();
+            Timestamp end = readBookingEnd(start);
+            int[] free = dbManager.findFreeTables(partySize, start, end);
+            StringBuilder tables = new StringBuilder();
+            for (int tableNumber : free) {
+                if (tables.length() > 0) tables.append(", ");
+                tables.append(tableNumber);
+            }
+            showAlert(Alert.AlertType.INFORMATION, "Free Tables", free.length + " table(s) free for " + partySize,
+                      free.length == 0 ? "No table is free for that slot." : "Tables: " + tables);
+        } catch (NumberFormatException e) {
+            showAlert(Alert.AlertType.ERROR, "Error", "Invalid Input", "Please enter valid numbers for capacity and minutes.");
+        } catch (DateTimeParseException e) {
+            showAlert(Alert.AlertType.ERROR, "Error", "Invalid Input", "Please enter the start as yyyy-MM-dd HH:mm.");
+        }
+    }
+
+    private void reserveAnyTable() {
+        try {
+            int partySize = Integer.parseInt(bookingCapacityField.getText());
+            String customerName = bookingCustomerNameField.getText();
+            Timestamp start = readBookingStart();
+            Timestamp end = readBookingEnd(start);
+            asyncDb.reserveTable(partySize, customerName, start, end).whenComplete((booking, error) -> {
+                if (error != null) {
+                    showDbError("No Table Reserved", error);
+                    return;
+                }
+                syncChanges();
+                clearBookingFields();
+                showAlert(Alert.AlertType.INFORMATION, "Success", "Table " + booking.getTableNumber() + " Reserved",
+                          "Table " + booking.getTableNumber() + " is booked for " + customerName + " (party of " + partySize + ").");
+            });
+        } catch (NumberFormatException e) {
+            showAlert(Alert.AlertType.ERROR, "Error", "Invalid Input", "Please enter valid numbers for capacity and minutes.");
+        } catch (DateTimeParseException e) {
+            showAlert(Alert.AlertType.ERROR, "Error", "Invalid Input", "Please enter the start as yyyy-MM-dd HH:mm.");
+        }
+    }
+
+    private Timestamp readBookingStart() {
+        String text = bookingStartField.getText();
+        return Timestamp.valueOf(text == null || text.isBlank() ? LocalDateTime.now() : LocalDateTime.parse(text.trim(), BOOKING_TIME_FORMAT));
+    }
+
+    private Timestamp readBookingEnd(Timestamp start) {
+        long minutes = Long.parseLong(bookingDurationField.getText().trim());
+        if (minutes <= 0) throw new NumberFormatException("Minutes must be positive.");
+        return new Timestamp(start.getTime() + minutes * 60_000L);
+    }
+
     private void clearBookingFields() {
         bookingTableNumberField.clear();
         bookingCapacityField.clear();
         bookingCustomerNameField.clear();
+        bookingStartField.clear();
+        bookingDurationField.setText(Long.toString(TableBooking.DEFAULT_DURATION_MILLIS / 60_000L));
         bookingTable.getSelectionModel().clearSelection();
     }
 
@@ -651,8 +1187,23 @@ public class Main extends Application {
         alert.showAndWait();
     }
 
+    // Reports a failed background database call; the real cause is wrapped by the future. The call
+    // itself is already counted as an error in the operation metrics.
+    private void showDbError(String header, Throwable error) {
+        Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+        showAlert(Alert.AlertType.ERROR, "DB Error", header, "Error: " + cause.getMessage());
+    }
+
     @Override
     public void stop() {
+        stallProbe.stop();
+        System.out.println(stallProbe);
+        if (eventSubscription != null) {
+            eventSubscription.close();
+        }
+        if (asyncDb != null) {
+            asyncDb.shutdown();
+        }
         if (dbManager != null) {
             dbManager.close();
         }
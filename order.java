@@ -3,25 +3,46 @@ package application;
 
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+/**
+ * An order and its lines, stored compactly: the order time as epoch millis, money as long
+ * cents, statuses as enums, and the lines in parallel primitive arrays instead of a list of
+ * OrderItem objects. The Timestamp/double/String/OrderItem accessors remain for existing
+ * callers and convert on demand.
+ */
 public class Order {
+    private static final int[] NO_INTS = new int[0];
+    private static final long[] NO_LONGS = new long[0];
+    private static final String[] NO_NAMES = new String[0];
+
     private int id;
     private int tableNumber;
-    private Timestamp orderTime;
-    private double totalAmount;
-    private String status; // Added status field
-    private String paymentStatus; // Added paymentStatus field
-    private List<OrderItem> items; // List of items in this order
-
-    public Order(int id, int tableNumber, Timestamp orderTime, double totalAmount, String status, String paymentStatus) {
+    private long orderTimeMillis;
+    private long totalCents;
+    private OrderStatus status;
+    private PaymentStatus paymentStatus;
+
+    // Order lines: line i is (itemMenuIds[i], itemNames[i], itemQuantities[i], itemPriceCents[i])
+    private int itemCount;
+    private int[] itemMenuIds = NO_INTS;
+    private String[] itemNames = NO_NAMES; // Shared with the menu catalog, not copied
+    private int[] itemQuantities = NO_INTS;
+    private long[] itemPriceCents = NO_LONGS;
+
+    public Order(int id, int tableNumber, long orderTimeMillis, long totalCents, OrderStatus status, PaymentStatus paymentStatus) {
         this.id = id;
         this.tableNumber = tableNumber;
-        this.orderTime = orderTime;
-        this.totalAmount = totalAmount;
+        this.orderTimeMillis = orderTimeMillis;
+        this.totalCents = totalCents;
         this.status = status;
         this.paymentStatus = paymentStatus;
-        this.items = new ArrayList<>();
+    }
+
+    public Order(int id, int tableNumber, Timestamp orderTime, double totalAmount, String status, String paymentStatus) {
+        this(id, tableNumber, orderTime != null ? orderTime.getTime() : 0L, Money.ofDouble(totalAmount),
+             OrderStatus.fromDbValue(status), PaymentStatus.fromDbValue(paymentStatus));
     }
 
     // Getters
@@ -33,23 +54,73 @@ public class Order {
         return tableNumber;
     }
 
+    public long getOrderTimeMillis() {
+        return orderTimeMillis;
+    }
+
     public Timestamp getOrderTime() {
-        return orderTime;
+        return new Timestamp(orderTimeMillis);
+    }
+
+    public long getTotalCents() {
+        return totalCents;
     }
 
     public double getTotalAmount() {
-        return totalAmount;
+        return Money.toDouble(totalCents);
     }
 
-    public String getStatus() {
+    /**
+     * @return The sum of quantity times unit price over this order's lines, in cents.
+     */
+    public long getLinesTotalCents() {
+        return Money.sumLines(itemQuantities, itemPriceCents, itemCount);
+    }
+
+    public OrderStatus getOrderStatus() {
         return status;
     }
 
-    public String getPaymentStatus() {
+    public String getStatus() {
+        return status.getDbValue();
+    }
+
+    public PaymentStatus getOrderPaymentStatus() {
         return paymentStatus;
     }
 
+    public String getPaymentStatus() {
+        return paymentStatus.getDbValue();
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public int getItemMenuId(int index) {
+        return itemMenuIds[index];
+    }
+
+    public String getItemName(int index) {
+        return itemNames[index];
+    }
+
+    public int getItemQuantity(int index) {
+        return itemQuantities[index];
+    }
+
+    public long getItemPriceCents(int index) {
+        return itemPriceCents[index];
+    }
+
+    /**
+     * @return The lines as new OrderItem objects. Prefer the indexed getters on hot paths.
+     */
     public List<OrderItem> getItems() {
+        List<OrderItem> items = new ArrayList<>(itemCount);
+        for (int i = 0; i < itemCount; i++) {
+            items.add(new OrderItem(itemMenuIds[i], itemNames[i], itemQuantities[i], itemPriceCents[i]));
+        }
         return items;
     }
 
@@ -62,32 +133,89 @@ public class Order {
         this.tableNumber = tableNumber;
     }
 
+    public void setOrderTimeMillis(long orderTimeMillis) {
+        this.orderTimeMillis = orderTimeMillis;
+    }
+
     public void setOrderTime(Timestamp orderTime) {
-        this.orderTime = orderTime;
+        this.orderTimeMillis = orderTime != null ? orderTime.getTime() : 0L;
+    }
+
+    public void setTotalCents(long totalCents) {
+        this.totalCents = totalCents;
     }
 
     public void setTotalAmount(double totalAmount) {
-        this.totalAmount = totalAmount;
+        this.totalCents = Money.ofDouble(totalAmount);
     }
 
-    public void setStatus(String status) {
+    public void setOrderStatus(OrderStatus status) {
         this.status = status;
     }
 
-    public void setPaymentStatus(String paymentStatus) {
+    public void setStatus(String status) {
+        this.status = OrderStatus.fromDbValue(status);
+    }
+
+    public void setOrderPaymentStatus(PaymentStatus paymentStatus) {
         this.paymentStatus = paymentStatus;
     }
 
+    public void setPaymentStatus(String paymentStatus) {
+        this.paymentStatus = PaymentStatus.fromDbValue(paymentStatus);
+    }
+
     public void setItems(List<OrderItem> items) {
-        this.items = items;
+        itemCount = 0;
+        for (OrderItem item : items) {
+            addOrderItem(item);
+        }
+    }
+
+    /**
+     * @return An order equal to this one that shares nothing mutable with it.
+     */
+    public Order copy() {
+        Order copy = new Order(id, tableNumber, orderTimeMillis, totalCents, status, paymentStatus);
+        copy.setItemsFrom(this);
+        return copy;
+    }
+
+    /**
+     * Copies another order's lines into this one, sharing nothing mutable.
+     */
+    public void setItemsFrom(Order other) {
+        itemCount = other.itemCount;
+        itemMenuIds = Arrays.copyOf(other.itemMenuIds, itemCount);
+        itemNames = Arrays.copyOf(other.itemNames, itemCount);
+        itemQuantities = Arrays.copyOf(other.itemQuantities, itemCount);
+        itemPriceCents = Arrays.copyOf(other.itemPriceCents, itemCount);
     }
 
     public void addOrderItem(OrderItem item) {
-        this.items.add(item);
+        addItem(item.getMenuItemId(), item.getItemName(), item.getQuantity(), item.getPriceCents());
+    }
+
+    /**
+     * Appends a line without creating an OrderItem.
+     */
+    public void addItem(int menuItemId, String itemName, int quantity, long priceCents) {
+        if (itemCount == itemMenuIds.length) {
+            int capacity = Math.max(4, itemCount * 2);
+            itemMenuIds = Arrays.copyOf(itemMenuIds, capacity);
+            itemNames = Arrays.copyOf(itemNames, capacity);
+            itemQuantities = Arrays.copyOf(itemQuantities, capacity);
+            itemPriceCents = Arrays.copyOf(itemPriceCents, capacity);
+        }
+        itemMenuIds[itemCount] = menuItemId;
+        itemNames[itemCount] = itemName;
+        itemQuantities[itemCount] = quantity;
+        itemPriceCents[itemCount] = priceCents;
+        itemCount++;
     }
 
     @Override
     public String toString() {
-        return "Order [id=" + id + ", tableNumber=" + tableNumber + ", orderTime=" + orderTime + ", totalAmount=" + totalAmount + ", status=" + status + ", paymentStatus=" + paymentStatus + ", items=" + items.size() + " items]";
+        return "Order [id=" + id + ", tableNumber=" + tableNumber + ", orderTime=" + getOrderTime() + ", totalAmount=" + Money.format(totalCents) + ", status=" + status + ", paymentStatus=" + paymentStatus + ", items=" + itemCount + " items]";
     }
 }